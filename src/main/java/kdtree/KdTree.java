@@ -6,10 +6,18 @@ import edu.princeton.cs.algs4.StdDraw;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 public class KdTree {
+    private static final int PARALLEL_DEPTH = 4;
+
     private int size;
     private Node root;
 
@@ -49,6 +57,36 @@ public class KdTree {
         return getNearest(p);
     }
 
+    public Map<Point2D, Point2D> allNearest(KdTree other) {
+        checkForNull(other);
+        NearestJoin join = new NearestJoin(other);
+        if (root != null && other.root != null)
+            ForkJoinPool.commonPool().invoke(join.new Task(0, 0));
+        return join.result();
+    }
+
+    public Iterable<Point2D[]> withinDistance(KdTree other, double distance) {
+        checkForNull(other);
+        if (!(distance >= 0))
+            throw new IllegalArgumentException("distance must be non-negative");
+        DistanceJoin join = new DistanceJoin(other == this, distance * distance);
+        return ForkJoinPool.commonPool().invoke(join.new Task(root, other.root, 0));
+    }
+
+    Iterable<Point2D> points() {
+        List<Point2D> result = new ArrayList<>(size);
+        collectSubtree(root, result);
+        return result;
+    }
+
+    private void collectSubtree(Node node, List<Point2D> list) {
+        if (node == null)
+            return;
+        list.add(node.point);
+        collectSubtree(node.left, list);
+        collectSubtree(node.right, list);
+    }
+
     private Point2D getNearest(Point2D p) {
         if (root == null) return null;
         ArrayList<Point2D> list = new ArrayList<>();
@@ -80,6 +118,18 @@ public class KdTree {
         return minDistance;
     }
 
+    private static double distanceSquared(double[][] first, double[][] second) {
+        double dx = Math.max(0.0, Math.max(first[0][0] - second[0][1], second[0][0] - first[0][1]));
+        double dy = Math.max(0.0, Math.max(first[1][0] - second[1][1], second[1][0] - first[1][1]));
+        return dx * dx + dy * dy;
+    }
+
+    private static double distanceSquared(double[][] bounds, Point2D p) {
+        double dx = Math.max(0.0, Math.max(bounds[0][0] - p.x(), p.x() - bounds[0][1]));
+        double dy = Math.max(0.0, Math.max(bounds[1][0] - p.y(), p.y() - bounds[1][1]));
+        return dx * dx + dy * dy;
+    }
+
     private RectHV getRectHV(Node node) {
         double x0 = node.bounds[0][0];
         double y0 = node.bounds[1][0];
@@ -267,6 +317,200 @@ public class KdTree {
         }
     }
 
+    private class NearestJoin {
+        private final KdTree reference;
+        private final Node[] nodes;
+        private final int[] left;
+        private final int[] right;
+        private final double[] best;
+        private final Point2D[] match;
+
+        private NearestJoin(KdTree reference) {
+            this.reference = reference;
+            this.nodes = new Node[size];
+            this.left = new int[size];
+            this.right = new int[size];
+            this.best = new double[size];
+            this.match = new Point2D[size];
+            Arrays.fill(best, Double.POSITIVE_INFINITY);
+            flatten(root, 0);
+        }
+
+        private int flatten(Node node, int index) {
+            if (node == null)
+                return index;
+            nodes[index] = node;
+            int next = flatten(node.left, index + 1);
+            left[index] = node.left == null ? -1 : index + 1;
+            right[index] = node.right == null ? -1 : next;
+            return flatten(node.right, next);
+        }
+
+        private Map<Point2D, Point2D> result() {
+            Map<Point2D, Point2D> result = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (match[i] != null)
+                    result.put(nodes[i].point, match[i]);
+            }
+            return result;
+        }
+
+        private void subtree(int q) {
+            if (q < 0)
+                return;
+            pointToTree(q, reference.root);
+            seed(left[q], q);
+            seed(right[q], q);
+            subtree(left[q]);
+            subtree(right[q]);
+        }
+
+        private void seed(int child, int q) {
+            if (child < 0 || match[q] == null || match[q] == nodes[child].point)
+                return;
+            best[child] = nodes[child].point.distanceSquaredTo(match[q]);
+            match[child] = match[q];
+        }
+
+        private void pointToTree(int q, Node r) {
+            if (r == null)
+                return;
+            Point2D p = nodes[q].point;
+            if (distanceSquared(r.bounds, p) >= best[q])
+                return;
+            if (nodes[q] != r) {
+                double distance = p.distanceSquaredTo(r.point);
+                if (distance < best[q]) {
+                    best[q] = distance;
+                    match[q] = r.point;
+                }
+            }
+            if (less(p, r.point, r.position)) {
+                pointToTree(q, r.left);
+                pointToTree(q, r.right);
+            } else {
+                pointToTree(q, r.right);
+                pointToTree(q, r.left);
+            }
+        }
+
+        private class Task extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int q;
+            private final int depth;
+
+            private Task(int q, int depth) {
+                this.q = q;
+                this.depth = depth;
+            }
+
+            @Override
+            protected void compute() {
+                if (depth >= PARALLEL_DEPTH) {
+                    subtree(q);
+                    return;
+                }
+                pointToTree(q, reference.root);
+                List<Task> tasks = new ArrayList<>();
+                for (int child : new int[]{left[q], right[q]}) {
+                    if (child < 0)
+                        continue;
+                    seed(child, q);
+                    tasks.add(new Task(child, depth + 1));
+                }
+                invokeAll(tasks);
+            }
+        }
+    }
+
+    private static class DistanceJoin {
+        private final boolean self;
+        private final double limit;
+
+        private DistanceJoin(boolean self, double limit) {
+            this.self = self;
+            this.limit = limit;
+        }
+
+        private void pair(Node q, Node r, List<Point2D[]> list) {
+            if (q == null || r == null)
+                return;
+            if (distanceSquared(q.bounds, r.bounds) > limit)
+                return;
+            pointToPoint(q, r, list);
+            pointToTree(q, r.left, list);
+            pointToTree(q, r.right, list);
+            treeToPoint(q.left, r, list);
+            treeToPoint(q.right, r, list);
+            pair(q.left, r.left, list);
+            pair(q.left, r.right, list);
+            pair(q.right, r.left, list);
+            pair(q.right, r.right, list);
+        }
+
+        private void pointToTree(Node q, Node r, List<Point2D[]> list) {
+            if (r == null || distanceSquared(r.bounds, q.point) > limit)
+                return;
+            pointToPoint(q, r, list);
+            pointToTree(q, r.left, list);
+            pointToTree(q, r.right, list);
+        }
+
+        private void treeToPoint(Node q, Node r, List<Point2D[]> list) {
+            if (q == null || distanceSquared(q.bounds, r.point) > limit)
+                return;
+            pointToPoint(q, r, list);
+            treeToPoint(q.left, r, list);
+            treeToPoint(q.right, r, list);
+        }
+
+        private void pointToPoint(Node q, Node r, List<Point2D[]> list) {
+            if (self && q.point.compareTo(r.point) >= 0)
+                return;
+            if (q.point.distanceSquaredTo(r.point) <= limit)
+                list.add(new Point2D[]{q.point, r.point});
+        }
+
+        private class Task extends RecursiveTask<List<Point2D[]>> {
+            private static final long serialVersionUID = 1L;
+
+            private final Node q;
+            private final Node r;
+            private final int depth;
+
+            private Task(Node q, Node r, int depth) {
+                this.q = q;
+                this.r = r;
+                this.depth = depth;
+            }
+
+            @Override
+            protected List<Point2D[]> compute() {
+                List<Point2D[]> result = new ArrayList<>();
+                if (q == null || r == null || distanceSquared(q.bounds, r.bounds) > limit)
+                    return result;
+                if (depth >= PARALLEL_DEPTH) {
+                    pair(q, r, result);
+                    return result;
+                }
+                pointToPoint(q, r, result);
+                pointToTree(q, r.left, result);
+                pointToTree(q, r.right, result);
+                treeToPoint(q.left, r, result);
+                treeToPoint(q.right, r, result);
+                List<Task> tasks = new ArrayList<>();
+                tasks.add(new Task(q.left, r.left, depth + 1));
+                tasks.add(new Task(q.left, r.right, depth + 1));
+                tasks.add(new Task(q.right, r.left, depth + 1));
+                tasks.add(new Task(q.right, r.right, depth + 1));
+                for (Task task : invokeAll(tasks))
+                    result.addAll(task.join());
+                return result;
+            }
+        }
+    }
+
     private void checkForNull(Object p) {
         if (p == null)
             throw new NullPointerException("the passed argument equal to NULL");
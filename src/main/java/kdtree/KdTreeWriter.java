@@ -0,0 +1,238 @@
+package kdtree;
+
+import edu.princeton.cs.algs4.Point2D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public final class KdTreeWriter {
+
+    private static final Comparator<Point2D> BY_X_THEN_Y = Comparator.comparingDouble(Point2D::x)
+            .thenComparingDouble(Point2D::y);
+
+    private static final int EXACT_SPLIT_SIZE = 8;
+
+    private static final int SAMPLE_SIZE = 31;
+
+    private static final int BLOCK_SIZE = 128;
+
+    private KdTreeWriter() {
+    }
+
+    public static void write(KdTree tree, Path file) throws IOException {
+        checkForNull(tree);
+        List<Point2D> points = new ArrayList<>(tree.size());
+        for (Point2D p : tree.points())
+            points.add(p);
+        write(points.toArray(new Point2D[points.size()]), file);
+    }
+
+    public static void write(Point2D[] points, Path file) throws IOException {
+        checkForNull(points);
+        checkForNull(file);
+        Point2D[] distinct = distinct(points);
+        int length = byteSize(distinct.length);
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                layout(distinct, buffer);
+                buffer.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static Point2D[] distinct(Point2D[] points) {
+        Point2D[] copy = points.clone();
+        for (Point2D p : copy)
+            checkForNull(p);
+        Arrays.sort(copy, BY_X_THEN_Y);
+        int count = 0;
+        for (Point2D p : copy) {
+            if (count > 0 && copy[count - 1].x() == p.x() && copy[count - 1].y() == p.y())
+                continue;
+            copy[count++] = p;
+        }
+        return Arrays.copyOf(copy, count);
+    }
+
+    static int byteSize(int size) {
+        long length = StaticKdTree.HEADER_SIZE + (long) size * StaticKdTree.NODE_SIZE;
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many points for a single index: " + size);
+        return (int) length;
+    }
+
+    static void layout(Point2D[] distinct, ByteBuffer target) {
+        double[] xs = new double[distinct.length];
+        double[] ys = new double[distinct.length];
+        for (int i = 0; i < distinct.length; i++) {
+            xs[i] = distinct[i].x();
+            ys[i] = distinct[i].y();
+        }
+        layout(xs, ys, distinct.length, target);
+    }
+
+    static void layout(double[] xs, double[] ys, int count, ByteBuffer target) {
+        double minX = 0.0;
+        double minY = 0.0;
+        double maxX = 0.0;
+        double maxY = 0.0;
+        if (count > 0) {
+            minX = maxX = xs[0];
+            minY = maxY = ys[0];
+        }
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        target.putInt(0, StaticKdTree.MAGIC);
+        target.putInt(4, StaticKdTree.VERSION);
+        target.putInt(8, count);
+        target.putInt(12, 0);
+        target.putDouble(16, minX);
+        target.putDouble(24, minY);
+        target.putDouble(32, maxX);
+        target.putDouble(40, maxY);
+        writeSubtree(xs, ys, 0, count, true, 0, target, new int[2 * BLOCK_SIZE]);
+    }
+
+    private static void writeSubtree(double[] xs, double[] ys, int lo, int hi, boolean vertical, int position,
+                                     ByteBuffer target, int[] offsets) {
+        while (lo < hi) {
+            double[] keys = vertical ? xs : ys;
+            int median = hi - lo <= EXACT_SPLIT_SIZE ? partitionExact(keys, xs, ys, lo, hi)
+                    : partition(keys, xs, ys, lo, hi, offsets);
+            int offset = StaticKdTree.HEADER_SIZE + position * StaticKdTree.NODE_SIZE;
+            target.putDouble(offset, xs[median]);
+            target.putDouble(offset + 8, ys[median]);
+            target.putInt(offset + 16, median - lo);
+            writeSubtree(xs, ys, lo, median, !vertical, position + 1, target, offsets);
+            position += 1 + median - lo;
+            lo = median + 1;
+            vertical = !vertical;
+        }
+    }
+
+    private static int partitionExact(double[] keys, double[] xs, double[] ys, int lo, int hi) {
+        int median = (lo + hi) >>> 1;
+        select(keys, xs, ys, lo, hi - 1, median);
+        double split = keys[median];
+        int less = lo;
+        for (int i = lo; i < median; i++) {
+            if (keys[i] < split)
+                exchange(xs, ys, less++, i);
+        }
+        exchange(xs, ys, less, median);
+        return less;
+    }
+
+    private static int partition(double[] keys, double[] xs, double[] ys, int lo, int hi, int[] offsets) {
+        int sampleSize = hi - lo > 1 << 12 ? SAMPLE_SIZE : hi - lo > 1 << 8 ? 7 : 3;
+        int[] sample = new int[sampleSize];
+        long step = hi - lo;
+        for (int k = 0; k < sampleSize; k++)
+            sample[k] = lo + (int) ((2 * k + 1) * step / (2 * sampleSize));
+        for (int k = 1; k < sampleSize; k++) {
+            int index = sample[k];
+            int m = k - 1;
+            for (; m >= 0 && keys[sample[m]] > keys[index]; m--)
+                sample[m + 1] = sample[m];
+            sample[m + 1] = index;
+        }
+        exchange(xs, ys, lo, sample[sampleSize / 2]);
+        double split = keys[lo];
+        int i = lo + 1;
+        int j = hi - 1;
+        int leftCount = 0;
+        int rightCount = 0;
+        int leftStart = 0;
+        int rightStart = 0;
+        while (j - i + 1 > 2 * BLOCK_SIZE) {
+            if (leftCount == 0) {
+                leftStart = 0;
+                for (int k = 0; k < BLOCK_SIZE; k++) {
+                    offsets[leftCount] = k;
+                    leftCount += keys[i + k] >= split ? 1 : 0;
+                }
+            }
+            if (rightCount == 0) {
+                rightStart = 0;
+                for (int k = 0; k < BLOCK_SIZE; k++) {
+                    offsets[BLOCK_SIZE + rightCount] = k;
+                    rightCount += keys[j - k] < split ? 1 : 0;
+                }
+            }
+            int count = Math.min(leftCount, rightCount);
+            for (int k = 0; k < count; k++)
+                exchange(xs, ys, i + offsets[leftStart + k], j - offsets[BLOCK_SIZE + rightStart + k]);
+            leftCount -= count;
+            rightCount -= count;
+            leftStart += count;
+            rightStart += count;
+            if (leftCount == 0)
+                i += BLOCK_SIZE;
+            if (rightCount == 0)
+                j -= BLOCK_SIZE;
+        }
+        while (true) {
+            while (i <= j && keys[i] < split) i++;
+            while (i <= j && keys[j] >= split) j--;
+            if (i >= j)
+                break;
+            exchange(xs, ys, i++, j--);
+        }
+        exchange(xs, ys, lo, i - 1);
+        return i - 1;
+    }
+
+    private static void select(double[] keys, double[] xs, double[] ys, int lo, int hi, int k) {
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j)
+                    exchange(xs, ys, i++, j--);
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private static void exchange(double[] xs, double[] ys, int i, int j) {
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+
+    private static void checkForNull(Object p) {
+        if (p == null)
+            throw new NullPointerException("the passed argument equal to NULL");
+    }
+
+}
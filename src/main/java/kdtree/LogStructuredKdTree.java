@@ -0,0 +1,445 @@
+package kdtree;
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+public class LogStructuredKdTree {
+
+    private static final int DEFAULT_BUFFER_CAPACITY = 4096;
+
+    private static final int FANOUT = 8;
+
+    private static final int MAX_SEGMENTS = 64;
+
+    private static final int MAX_SEGMENT_SIZE = (Integer.MAX_VALUE - StaticKdTree.HEADER_SIZE) / StaticKdTree.NODE_SIZE;
+
+    private static final int FILTER_BITS_PER_POINT = 16;
+
+    private static final int FILTER_HASHES = 3;
+
+    private final int bufferCapacity;
+
+    private final Executor merger;
+
+    private double[] bufferX;
+
+    private double[] bufferY;
+
+    private int buffered;
+
+    private int[] bufferIndex;
+
+    private boolean[] duplicate;
+
+    private int counted;
+
+    private int size;
+
+    private List<Segment> segments = Collections.emptyList();
+
+    private long[] filter = new long[1];
+
+    private int filterCapacity;
+
+    private boolean merging;
+
+    public LogStructuredKdTree() {
+        this(DEFAULT_BUFFER_CAPACITY);
+    }
+
+    public LogStructuredKdTree(int bufferCapacity) {
+        this(bufferCapacity, task -> {
+            Thread thread = new Thread(task, "kd-tree-merger");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    public LogStructuredKdTree(int bufferCapacity, Executor merger) {
+        if (bufferCapacity <= 0)
+            throw new IllegalArgumentException("buffer capacity must be positive");
+        checkForNull(merger);
+        this.bufferCapacity = bufferCapacity;
+        this.merger = merger;
+        this.bufferX = new double[bufferCapacity];
+        this.bufferY = new double[bufferCapacity];
+        this.bufferIndex = new int[Integer.highestOneBit(bufferCapacity * 2 - 1) << 1];
+        this.duplicate = new boolean[bufferCapacity];
+    }
+
+    public synchronized boolean isEmpty() {
+        return buffered == 0 && segments.isEmpty();
+    }
+
+    public synchronized int size() {
+        countBuffer();
+        return size;
+    }
+
+    public synchronized void insert(Point2D p) {
+        checkForNull(p);
+        bufferX[buffered] = p.x();
+        bufferY[buffered] = p.y();
+        buffered++;
+        if (buffered == bufferCapacity)
+            flush();
+    }
+
+    public boolean contains(Point2D p) {
+        checkForNull(p);
+        double[] pendingX;
+        double[] pendingY;
+        int count;
+        List<Segment> snapshot;
+        long[] bits;
+        synchronized (this) {
+            pendingX = bufferX;
+            pendingY = bufferY;
+            count = buffered;
+            snapshot = segments;
+            bits = filter;
+        }
+        for (int i = 0; i < count; i++) {
+            if (pendingX[i] == p.x() && pendingY[i] == p.y())
+                return true;
+        }
+        return inSegments(snapshot, bits, p.x(), p.y());
+    }
+
+    public Iterable<Point2D> range(RectHV rect) {
+        checkForNull(rect);
+        double[] pendingX;
+        double[] pendingY;
+        int count;
+        List<Segment> snapshot;
+        synchronized (this) {
+            pendingX = bufferX;
+            pendingY = bufferY;
+            count = buffered;
+            snapshot = segments;
+        }
+        Set<Point2D> result = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (pendingX[i] >= rect.xmin() && pendingX[i] <= rect.xmax()
+                    && pendingY[i] >= rect.ymin() && pendingY[i] <= rect.ymax())
+                result.add(new Point2D(pendingX[i] + 0.0, pendingY[i] + 0.0));
+        }
+        for (Segment segment : snapshot) {
+            for (Point2D p : segment.tree.range(rect))
+                result.add(p);
+        }
+        return result;
+    }
+
+    public Point2D nearest(Point2D p) {
+        checkForNull(p);
+        double[] pendingX;
+        double[] pendingY;
+        int count;
+        List<Segment> snapshot;
+        synchronized (this) {
+            pendingX = bufferX;
+            pendingY = bufferY;
+            count = buffered;
+            snapshot = segments;
+        }
+        int champion = -1;
+        double minDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double dx = pendingX[i] - p.x();
+            double dy = pendingY[i] - p.y();
+            double distance = dx * dx + dy * dy;
+            if (distance < minDistance) {
+                minDistance = distance;
+                champion = i;
+            }
+        }
+        Point2D best = champion < 0 ? null : new Point2D(pendingX[champion], pendingY[champion]);
+        for (Segment segment : snapshot)
+            best = segment.tree.nearest(p, best);
+        return best;
+    }
+
+    public void compact() {
+        List<Segment> inputs;
+        synchronized (this) {
+            awaitMerge();
+            if (merging)
+                return;
+            if (buffered > 0)
+                publishBuffer();
+            inputs = segments;
+            if (inputs.size() < 2 || totalSize(inputs) > MAX_SEGMENT_SIZE)
+                return;
+            merging = true;
+        }
+        try {
+            replace(inputs, build(inputs));
+        } finally {
+            synchronized (this) {
+                merging = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private void flush() {
+        if (segments.size() >= MAX_SEGMENTS)
+            awaitMerge();
+        publishBuffer();
+        if (!merging && pickMerge() != null) {
+            merging = true;
+            try {
+                merger.execute(this::merge);
+            } catch (RuntimeException e) {
+                merging = false;
+                throw e;
+            }
+        }
+    }
+
+    private void awaitMerge() {
+        while (merging) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void countBuffer() {
+        int mask = bufferIndex.length - 1;
+        for (; counted < buffered; counted++) {
+            double x = bufferX[counted] + 0.0;
+            double y = bufferY[counted] + 0.0;
+            int slot = (int) hash(x, y) & mask;
+            boolean seen = false;
+            while (bufferIndex[slot] != 0) {
+                int other = bufferIndex[slot] - 1;
+                if (bufferX[other] == x && bufferY[other] == y) {
+                    seen = true;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (!seen) {
+                bufferIndex[slot] = counted + 1;
+                seen = inSegments(segments, filter, x, y);
+            }
+            duplicate[counted] = seen;
+            if (!seen)
+                size++;
+        }
+    }
+
+    private void publishBuffer() {
+        countBuffer();
+        double[] xs = new double[buffered];
+        double[] ys = new double[buffered];
+        int count = 0;
+        for (int i = 0; i < buffered; i++) {
+            if (duplicate[i])
+                continue;
+            xs[count] = bufferX[i] + 0.0;
+            ys[count] = bufferY[i] + 0.0;
+            count++;
+        }
+        if (count > 0) {
+            List<Segment> next = new ArrayList<>(segments);
+            next.add(build(xs, ys, count));
+            segments = Collections.unmodifiableList(next);
+            if (size > filterCapacity)
+                rebuildFilter();
+            else
+                addToFilter(filter, xs, ys, count);
+        }
+        bufferX = new double[bufferCapacity];
+        bufferY = new double[bufferCapacity];
+        Arrays.fill(bufferIndex, 0);
+        buffered = 0;
+        counted = 0;
+    }
+
+    private void merge() {
+        try {
+            while (true) {
+                List<Segment> inputs;
+                synchronized (this) {
+                    inputs = pickMerge();
+                }
+                if (inputs == null)
+                    return;
+                replace(inputs, build(inputs));
+            }
+        } finally {
+            synchronized (this) {
+                merging = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void replace(List<Segment> inputs, Segment merged) {
+        List<Segment> next = new ArrayList<>(segments);
+        next.removeAll(inputs);
+        next.add(merged);
+        segments = Collections.unmodifiableList(next);
+        notifyAll();
+    }
+
+    private List<Segment> pickMerge() {
+        Map<Integer, List<Segment>> tiers = new TreeMap<>();
+        for (Segment segment : segments) {
+            List<Segment> tier = tiers.get(segment.tier);
+            if (tier == null) {
+                tier = new ArrayList<>();
+                tiers.put(segment.tier, tier);
+            }
+            tier.add(segment);
+        }
+        for (List<Segment> tier : tiers.values()) {
+            if (tier.size() < FANOUT)
+                continue;
+            List<Segment> inputs = tier.subList(0, FANOUT);
+            if (totalSize(inputs) <= MAX_SEGMENT_SIZE)
+                return inputs;
+        }
+        return null;
+    }
+
+    private long totalSize(List<Segment> inputs) {
+        long total = 0;
+        for (Segment segment : inputs)
+            total += segment.tree.size();
+        return total;
+    }
+
+    private Segment build(List<Segment> inputs) {
+        int total = (int) totalSize(inputs);
+        double[] xs = new double[total];
+        double[] ys = new double[total];
+        int count = 0;
+        for (Segment segment : inputs) {
+            for (int i = 0; i < segment.tree.size(); i++) {
+                xs[count] = segment.tree.x(i);
+                ys[count] = segment.tree.y(i);
+                count++;
+            }
+        }
+        return build(xs, ys, count);
+    }
+
+    private Segment build(double[] xs, double[] ys, int count) {
+        ByteBuffer target = ByteBuffer.allocate(KdTreeWriter.byteSize(count));
+        KdTreeWriter.layout(xs, ys, count, target);
+        return new Segment(new StaticKdTree(target), tierOf(count));
+    }
+
+    private boolean inSegments(List<Segment> snapshot, long[] bits, double x, double y) {
+        long hash = hash(x, y);
+        long mask = mask(hash);
+        if ((bits[word(bits, hash)] & mask) != mask)
+            return false;
+        Point2D p = new Point2D(x, y);
+        for (Segment segment : snapshot) {
+            if (segment.tree.contains(p))
+                return true;
+        }
+        return false;
+    }
+
+    private void rebuildFilter() {
+        filterCapacity = Math.max(bufferCapacity, size) * 2;
+        long[] next = new long[(int) ((filterCapacity * (long) FILTER_BITS_PER_POINT + 63) >>> 6)];
+        for (Segment segment : segments) {
+            for (int i = 0; i < segment.tree.size(); i++) {
+                long hash = hash(segment.tree.x(i), segment.tree.y(i));
+                next[word(next, hash)] |= mask(hash);
+            }
+        }
+        filter = next;
+    }
+
+    private void addToFilter(long[] bits, double[] xs, double[] ys, int count) {
+        for (int i = 0; i < count; i++) {
+            long hash = hash(xs[i], ys[i]);
+            bits[word(bits, hash)] |= mask(hash);
+        }
+    }
+
+    private static int word(long[] bits, long hash) {
+        return (int) (((hash >>> 32) * bits.length) >>> 32);
+    }
+
+    private static long mask(long hash) {
+        long mask = 0;
+        for (int i = 0; i < FILTER_HASHES; i++)
+            mask |= 1L << (hash >>> 6 * i);
+        return mask;
+    }
+
+    private int tierOf(int count) {
+        int tier = 0;
+        long capacity = bufferCapacity;
+        while (count > capacity) {
+            capacity *= FANOUT;
+            tier++;
+        }
+        return tier;
+    }
+
+    private static long hash(double x, double y) {
+        long hash = Double.doubleToLongBits(x + 0.0) * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(y + 0.0);
+        hash *= 0xC2B2AE3D27D4EB4FL;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static class Segment {
+        private final StaticKdTree tree;
+        private final int tier;
+
+        private Segment(StaticKdTree tree, int tier) {
+            this.tree = tree;
+            this.tier = tier;
+        }
+    }
+
+    private void checkForNull(Object p) {
+        if (p == null)
+            throw new NullPointerException("the passed argument equal to NULL");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int points = 20000;
+        int rounds = 200;
+        int failures = 0;
+        for (int round = 0; round < rounds; round++) {
+            LogStructuredKdTree tree = new LogStructuredKdTree(1);
+            double y = round;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < points; i++)
+                    tree.insert(new Point2D(i, y));
+            });
+            writer.start();
+            while (writer.isAlive())
+                tree.compact();
+            writer.join();
+            tree.compact();
+            int found = 0;
+            for (Point2D p : tree.range(new RectHV(0, y, points, y)))
+                found++;
+            if (tree.size() != points || found != points) {
+                failures++;
+                System.out.println("round " + round + ": size " + tree.size() + ", range " + found);
+            }
+        }
+        System.out.println(failures + " of " + rounds + " rounds failed");
+    }
+
+}
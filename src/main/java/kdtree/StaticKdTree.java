@@ -0,0 +1,199 @@
+package kdtree;
+
+import edu.princeton.cs.algs4.Point2D;
+import edu.princeton.cs.algs4.RectHV;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.List;
+
+public final class StaticKdTree {
+
+    static final int MAGIC = 0x4B445431;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 48;
+
+    static final int NODE_SIZE = 20;
+
+    private final ByteBuffer buffer;
+
+    private final int size;
+
+    private final double minX;
+
+    private final double minY;
+
+    private final double maxX;
+
+    private final double maxY;
+
+    StaticKdTree(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("not a kd-tree index");
+        if (buffer.getInt(4) != VERSION)
+            throw new IllegalArgumentException("unsupported kd-tree index version " + buffer.getInt(4));
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        if ((long) HEADER_SIZE + (long) size * NODE_SIZE > buffer.capacity())
+            throw new IllegalArgumentException("truncated kd-tree index");
+        this.minX = buffer.getDouble(16);
+        this.minY = buffer.getDouble(24);
+        this.maxX = buffer.getDouble(32);
+        this.maxY = buffer.getDouble(40);
+    }
+
+    public static StaticKdTree open(Path file) throws IOException {
+        if (file == null)
+            throw new NullPointerException("the passed argument equal to NULL");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new StaticKdTree(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + ": " + file, e);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Point2D p) {
+        checkForNull(p);
+        int current = 0;
+        int end = size;
+        boolean vertical = true;
+        while (current < end) {
+            double x = x(current);
+            double y = y(current);
+            if (p.x() == x && p.y() == y)
+                return true;
+            int right = current + 1 + leftSize(current);
+            if (vertical ? p.x() < x : p.y() < y) {
+                end = right;
+                current++;
+            } else {
+                current = right;
+            }
+            vertical = !vertical;
+        }
+        return false;
+    }
+
+    public Iterable<Point2D> range(RectHV rect) {
+        checkForNull(rect);
+        List<Point2D> result = new LinkedList<>();
+        findAllIntersection(rect, 0, size, true, minX, minY, maxX, maxY, result);
+        return result;
+    }
+
+    public Point2D nearest(Point2D p) {
+        checkForNull(p);
+        return nearest(p, null);
+    }
+
+    Point2D nearest(Point2D p, Point2D best) {
+        if (size == 0)
+            return best;
+        double minDistance = best == null ? Double.POSITIVE_INFINITY : best.distanceSquaredTo(p);
+        int[] champion = new int[]{-1};
+        getNearest(p, 0, size, true, minX, minY, maxX, maxY, minDistance, champion);
+        return champion[0] < 0 ? best : point(champion[0]);
+    }
+
+    Point2D point(int index) {
+        return new Point2D(x(index), y(index));
+    }
+
+    private void findAllIntersection(RectHV rect, int node, int end, boolean vertical,
+                                     double x0, double y0, double x1, double y1, List<Point2D> list) {
+        if (node >= end)
+            return;
+        if (rect.xmax() < x0 || rect.xmin() > x1 || rect.ymax() < y0 || rect.ymin() > y1)
+            return;
+        double x = x(node);
+        double y = y(node);
+        if (x >= rect.xmin() && x <= rect.xmax() && y >= rect.ymin() && y <= rect.ymax())
+            list.add(new Point2D(x, y));
+        int right = node + 1 + leftSize(node);
+        if (vertical) {
+            findAllIntersection(rect, node + 1, right, false, x0, y0, x, y1, list);
+            findAllIntersection(rect, right, end, false, x, y0, x1, y1, list);
+        } else {
+            findAllIntersection(rect, node + 1, right, true, x0, y0, x1, y, list);
+            findAllIntersection(rect, right, end, true, x0, y, x1, y1, list);
+        }
+    }
+
+    private double getNearest(Point2D p, int node, int end, boolean vertical,
+                              double x0, double y0, double x1, double y1, double minDistance, int[] champion) {
+        if (node >= end)
+            return minDistance;
+        if (distanceSquared(p, x0, y0, x1, y1) >= minDistance)
+            return minDistance;
+        double x = x(node);
+        double y = y(node);
+        double dx = p.x() - x;
+        double dy = p.y() - y;
+        double distanceToPoint = dx * dx + dy * dy;
+        if (distanceToPoint < minDistance) {
+            minDistance = distanceToPoint;
+            champion[0] = node;
+        }
+        int right = node + 1 + leftSize(node);
+        if (vertical) {
+            if (p.x() < x) {
+                minDistance = getNearest(p, node + 1, right, false, x0, y0, x, y1, minDistance, champion);
+                minDistance = getNearest(p, right, end, false, x, y0, x1, y1, minDistance, champion);
+            } else {
+                minDistance = getNearest(p, right, end, false, x, y0, x1, y1, minDistance, champion);
+                minDistance = getNearest(p, node + 1, right, false, x0, y0, x, y1, minDistance, champion);
+            }
+        } else {
+            if (p.y() < y) {
+                minDistance = getNearest(p, node + 1, right, true, x0, y0, x1, y, minDistance, champion);
+                minDistance = getNearest(p, right, end, true, x0, y, x1, y1, minDistance, champion);
+            } else {
+                minDistance = getNearest(p, right, end, true, x0, y, x1, y1, minDistance, champion);
+                minDistance = getNearest(p, node + 1, right, true, x0, y0, x1, y, minDistance, champion);
+            }
+        }
+        return minDistance;
+    }
+
+    private double distanceSquared(Point2D p, double x0, double y0, double x1, double y1) {
+        double dx = 0.0;
+        double dy = 0.0;
+        if (p.x() < x0) dx = x0 - p.x();
+        else if (p.x() > x1) dx = p.x() - x1;
+        if (p.y() < y0) dy = y0 - p.y();
+        else if (p.y() > y1) dy = p.y() - y1;
+        return dx * dx + dy * dy;
+    }
+
+    double x(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * NODE_SIZE);
+    }
+
+    double y(int index) {
+        return buffer.getDouble(HEADER_SIZE + index * NODE_SIZE + 8);
+    }
+
+    private int leftSize(int index) {
+        return buffer.getInt(HEADER_SIZE + index * NODE_SIZE + 16);
+    }
+
+    private void checkForNull(Object p) {
+        if (p == null)
+            throw new NullPointerException("the passed argument equal to NULL");
+    }
+
+}
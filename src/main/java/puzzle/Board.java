@@ -100,6 +100,135 @@ public class Board {
         return manhattan() == 0;
     }
 
+    boolean hasSolution() {
+        int size = dimension();
+        int cells = size * size;
+        int[] tiles = new int[cells];
+        int blankRow = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                tiles[i * size + j] = blocks[i][j];
+                if (blocks[i][j] == 0)
+                    blankRow = i;
+            }
+        }
+        int inversions = 0;
+        for (int i = 0; i < cells; i++) {
+            for (int j = i + 1; j < cells; j++) {
+                if (tiles[i] != 0 && tiles[j] != 0 && tiles[i] > tiles[j])
+                    inversions++;
+            }
+        }
+        if (size % 2 == 1)
+            return inversions % 2 == 0;
+        return (inversions + blankRow) % 2 == 1;
+    }
+
+    int tileAt(int row, int col) {
+        return blocks[row][col];
+    }
+
+    int blankPosition() {
+        int[] blank = getZeroCoordinates(blocks);
+        return blank[0] * dimension() + blank[1];
+    }
+
+    Board moveBlank(int rowShift, int colShift) {
+        int[] blank = getZeroCoordinates(blocks);
+        int[] target = new int[]{blank[0] + rowShift, blank[1] + colShift};
+        int size = dimension();
+        if (target[0] < 0 || target[0] >= size || target[1] < 0 || target[1] >= size)
+            throw new IllegalArgumentException("blank can not be moved outside the board");
+        int[][] copy = getCopyBlocks(blocks);
+        swap(copy, blank, target);
+        return new Board(copy);
+    }
+
+    Board transpose() {
+        int size = dimension();
+        int[][] copy = new int[size][size];
+        int value;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                value = blocks[j][i];
+                if (value != 0)
+                    copy[i][j] = getIndex(getCorrectIndexCol(value), getCorrectIndexRow(value));
+            }
+        }
+        return new Board(copy);
+    }
+
+    long[] pack() {
+        int size = dimension();
+        int[] tiles = new int[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++)
+                tiles[i * size + j] = blocks[i][j];
+        }
+        long[] words = new long[packedWords(size)];
+        pack(tiles, size, words, 0);
+        return words;
+    }
+
+    static int packedWords(int size) {
+        return (size * size * packedBits(size) + 63) / 64;
+    }
+
+    static void pack(int[] tiles, int size, long[] target, int offset) {
+        int bits = packedBits(size);
+        for (int i = 0; i < tiles.length; i++) {
+            long value = tiles[i];
+            int bit = i * bits;
+            int word = offset + (bit >>> 6);
+            int shift = bit & 63;
+            target[word] |= value << shift;
+            if (shift + bits > 64)
+                target[word + 1] |= value >>> (64 - shift);
+        }
+    }
+
+    static int[] unpack(long[] source, int offset, int size) {
+        int bits = packedBits(size);
+        int[] tiles = new int[size * size];
+        long mask = (1L << bits) - 1;
+        for (int i = 0; i < tiles.length; i++) {
+            int bit = i * bits;
+            int word = offset + (bit >>> 6);
+            int shift = bit & 63;
+            long value = source[word] >>> shift;
+            if (shift + bits > 64)
+                value |= source[word + 1] << (64 - shift);
+            tiles[i] = (int) (value & mask);
+        }
+        return tiles;
+    }
+
+    static int comparePacked(long[] first, int firstOffset, long[] second, int secondOffset, int words) {
+        for (int i = words - 1; i >= 0; i--) {
+            int result = Long.compareUnsigned(first[firstOffset + i], second[secondOffset + i]);
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+
+    private static int packedBits(int size) {
+        return 32 - Integer.numberOfLeadingZeros(size * size - 1);
+    }
+
+    private int[] getZeroCoordinates(int[][] quadraticArr) {
+        int size = quadraticArr.length;
+        int value;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                value = quadraticArr[i][j];
+                if (value == 0)
+                    return new int[]{i, j};
+            }
+        }
+        throw new IllegalArgumentException("blocks not have blank value");
+    }
+
     public Board twin() {
         int[][] copy = getCopyBlocks(blocks);
         swapRandom(copy);
@@ -150,6 +279,11 @@ public class Board {
 
     }
 
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(blocks);
+    }
+
     public Iterable<Board> neighbors() {
         return NeighborsIterator::new;
     }
@@ -238,19 +372,6 @@ public class Board {
             int size = dimension();
             return !(i < 0 || i > (size - 1)) && !(j < 0 || j > (size - 1));
         }
-
-        private int[] getZeroCoordinates(int[][] quadraticArr) {
-            int size = quadraticArr.length;
-            int value;
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    value = quadraticArr[i][j];
-                    if (value == 0)
-                        return new int[]{i, j};
-                }
-            }
-            throw new IllegalArgumentException("blocks not have blank value");
-        }
     }
 
     public String toString() {
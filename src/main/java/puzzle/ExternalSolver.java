@@ -0,0 +1,588 @@
+package puzzle;
+
+import edu.princeton.cs.algs4.MinPQ;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class ExternalSolver {
+
+    private static final int CHUNK_SHIFT = 27;
+
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private static final int MAX_CLOSED_PARTITIONS = 32;
+
+    private static final int NO_MOVE = 0xFF;
+
+    private static final int[] ROW_SHIFT = {-1, 1, 0, 0};
+
+    private static final int[] COL_SHIFT = {0, 0, -1, 1};
+
+    private final Board initial;
+
+    private final Path directory;
+
+    private final int memoryLimit;
+
+    private final int size;
+
+    private final int cells;
+
+    private final int words;
+
+    private final int stride;
+
+    private final int[][] distance;
+
+    private final TreeMap<Integer, Bucket> open = new TreeMap<>();
+
+    private final List<Run> closed = new ArrayList<>();
+
+    private final List<Path> files = new ArrayList<>();
+
+    private int buffered;
+
+    private List<Board> solution;
+
+    private int moves;
+
+    private boolean solvable;
+
+    public ExternalSolver(Board initial, Path directory, int memoryLimit) throws IOException {
+        if (initial == null || directory == null)
+            throw new NullPointerException("passed argument equal to NULL");
+        if (!Files.isDirectory(directory))
+            throw new IllegalArgumentException("spill directory does not exist: " + directory);
+        if (memoryLimit <= 0)
+            throw new IllegalArgumentException("memory limit must be positive");
+        this.initial = initial;
+        this.directory = directory;
+        this.memoryLimit = memoryLimit;
+        this.size = initial.dimension();
+        this.cells = size * size;
+        this.words = Board.packedWords(size);
+        this.stride = words + 1;
+        this.distance = distanceTable();
+        try {
+            if (initial.hasSolution())
+                solve();
+            else
+                markAsUnsolvable();
+        } finally {
+            deleteFiles();
+        }
+    }
+
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    public int moves() {
+        return moves;
+    }
+
+    public Iterable<Board> solution() {
+        return solution;
+    }
+
+    private void solve() throws IOException {
+        int[] tiles = tilesOf(initial);
+        long[] record = new long[stride];
+        Board.pack(tiles, size, record, 0);
+        int h = heuristic(tiles);
+        record[words] = meta(0, h, NO_MOVE);
+        add(record, 0, h);
+        while (!open.isEmpty()) {
+            Map.Entry<Integer, Bucket> entry = open.firstEntry();
+            if (entry.getValue().isEmpty()) {
+                open.remove(entry.getKey());
+                continue;
+            }
+            long[] goal = expandRound(entry.getValue());
+            if (goal != null) {
+                markAsSolvable(goal);
+                return;
+            }
+        }
+        markAsUnsolvable();
+    }
+
+    private long[] expandRound(Bucket bucket) throws IOException {
+        List<Run> runs = bucket.drain();
+        MinPQ<Cursor> pq = new MinPQ<>();
+        for (Run run : runs) {
+            if (run.count > 0)
+                pq.insert(new Cursor(run));
+        }
+        List<ClosedCursor> scans = new ArrayList<>(closed.size());
+        for (Run run : closed)
+            scans.add(new ClosedCursor(run));
+        RunWriter partition = new RunWriter();
+        long[] current = null;
+        long[] goal = null;
+        while (!pq.isEmpty() && goal == null) {
+            Cursor cursor = pq.delMin();
+            if (current == null || compareBoards(current, 0, cursor.record, 0) != 0) {
+                if (current != null)
+                    goal = process(current, scans, partition);
+                current = cursor.record.clone();
+            } else if (gOf(cursor.record) < gOf(current)) {
+                current[words] = cursor.record[words];
+            }
+            if (cursor.advance())
+                pq.insert(cursor);
+        }
+        if (goal == null && current != null)
+            goal = process(current, scans, partition);
+        addClosed(partition.finish());
+        for (Run run : runs)
+            run.delete();
+        return goal;
+    }
+
+    private long[] process(long[] record, List<ClosedCursor> scans, RunWriter partition) throws IOException {
+        if (isClosed(record, scans))
+            return null;
+        partition.write(record, 0);
+        if (hOf(record) == 0)
+            return record;
+        expand(record);
+        return null;
+    }
+
+    private void expand(long[] record) throws IOException {
+        int[] tiles = Board.unpack(record, 0, size);
+        int g = gOf(record);
+        int h = hOf(record);
+        int last = moveOf(record);
+        int blank = blankOf(tiles);
+        int row = blank / size;
+        int col = blank % size;
+        long[] child = new long[stride];
+        for (int move = 0; move < ROW_SHIFT.length; move++) {
+            if (last != NO_MOVE && move == (last ^ 1))
+                continue;
+            int nextRow = row + ROW_SHIFT[move];
+            int nextCol = col + COL_SHIFT[move];
+            if (nextRow < 0 || nextRow >= size || nextCol < 0 || nextCol >= size)
+                continue;
+            int next = nextRow * size + nextCol;
+            int tile = tiles[next];
+            int childH = h - distance[tile][next] + distance[tile][blank];
+            tiles[blank] = tile;
+            tiles[next] = 0;
+            Arrays.fill(child, 0L);
+            Board.pack(tiles, size, child, 0);
+            child[words] = meta(g + 1, childH, move);
+            add(child, g + 1, childH);
+            tiles[next] = tile;
+            tiles[blank] = 0;
+        }
+    }
+
+    private void add(long[] record, int g, int h) throws IOException {
+        Bucket bucket = open.get(g + h);
+        if (bucket == null) {
+            bucket = new Bucket();
+            open.put(g + h, bucket);
+        }
+        bucket.append(record);
+        if (++buffered > memoryLimit)
+            spill();
+    }
+
+    private void spill() throws IOException {
+        for (Bucket bucket : open.descendingMap().values()) {
+            if (buffered <= memoryLimit / 2)
+                return;
+            buffered -= bucket.count;
+            bucket.spill();
+        }
+    }
+
+    private boolean isClosed(long[] record, List<ClosedCursor> scans) {
+        for (ClosedCursor scan : scans) {
+            if (scan.seek(record))
+                return true;
+        }
+        return false;
+    }
+
+    private void addClosed(Run partition) throws IOException {
+        if (partition.count == 0) {
+            partition.delete();
+            return;
+        }
+        closed.add(partition);
+        int last = closed.size() - 1;
+        while (last > 0 && (closed.get(last - 1).count <= closed.get(last).count
+                || closed.size() > MAX_CLOSED_PARTITIONS)) {
+            List<Run> pair = new ArrayList<>(closed.subList(last - 1, last + 1));
+            closed.subList(last - 1, last + 1).clear();
+            closed.add(merge(pair));
+            last--;
+        }
+    }
+
+    private Run merge(List<Run> runs) throws IOException {
+        MinPQ<Cursor> pq = new MinPQ<>();
+        for (Run run : runs)
+            pq.insert(new Cursor(run));
+        RunWriter writer = new RunWriter();
+        while (!pq.isEmpty()) {
+            Cursor cursor = pq.delMin();
+            writer.write(cursor.record, 0);
+            if (cursor.advance())
+                pq.insert(cursor);
+        }
+        for (Run run : runs)
+            run.delete();
+        return writer.finish();
+    }
+
+    private void markAsSolvable(long[] goal) {
+        LinkedList<Board> path = new LinkedList<>();
+        long[] record = goal;
+        while (true) {
+            int[] tiles = Board.unpack(record, 0, size);
+            path.addFirst(boardOf(tiles));
+            int move = moveOf(record);
+            if (move == NO_MOVE)
+                break;
+            int blank = blankOf(tiles);
+            int previous = blank - ROW_SHIFT[move] * size - COL_SHIFT[move];
+            tiles[blank] = tiles[previous];
+            tiles[previous] = 0;
+            long[] key = new long[stride];
+            Board.pack(tiles, size, key, 0);
+            record = findClosed(key);
+        }
+        this.solvable = true;
+        this.moves = gOf(goal);
+        this.solution = Collections.unmodifiableList(path);
+    }
+
+    private long[] findClosed(long[] key) {
+        for (Run run : closed) {
+            long index = run.find(key);
+            if (index >= 0)
+                return run.read(index, new long[stride]);
+        }
+        throw new IllegalStateException("parent of a closed node is missing from the closed set");
+    }
+
+    private void markAsUnsolvable() {
+        this.solvable = false;
+        this.solution = null;
+        this.moves = -1;
+    }
+
+    private int[][] distanceTable() {
+        int[][] table = new int[cells][cells];
+        for (int tile = 1; tile < cells; tile++) {
+            for (int position = 0; position < cells; position++) {
+                table[tile][position] = Math.abs(position / size - (tile - 1) / size)
+                        + Math.abs(position % size - (tile - 1) % size);
+            }
+        }
+        return table;
+    }
+
+    private int heuristic(int[] tiles) {
+        int result = 0;
+        for (int position = 0; position < cells; position++)
+            result += distance[tiles[position]][position];
+        return result;
+    }
+
+    private int[] tilesOf(Board board) {
+        int[] tiles = new int[cells];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++)
+                tiles[i * size + j] = board.tileAt(i, j);
+        }
+        return tiles;
+    }
+
+    private Board boardOf(int[] tiles) {
+        int[][] blocks = new int[size][size];
+        for (int i = 0; i < cells; i++)
+            blocks[i / size][i % size] = tiles[i];
+        return new Board(blocks);
+    }
+
+    private int blankOf(int[] tiles) {
+        for (int i = 0; i < cells; i++) {
+            if (tiles[i] == 0)
+                return i;
+        }
+        throw new IllegalArgumentException("blocks not have blank value");
+    }
+
+    private long meta(int g, int h, int move) {
+        return ((long) g << 32) | ((long) h << 8) | move;
+    }
+
+    private int gOf(long[] record) {
+        return (int) (record[words] >>> 32);
+    }
+
+    private int hOf(long[] record) {
+        return (int) (record[words] >>> 8) & 0xFFFFFF;
+    }
+
+    private int moveOf(long[] record) {
+        return (int) record[words] & 0xFF;
+    }
+
+    private int compareBoards(long[] first, int firstOffset, long[] second, int secondOffset) {
+        return Board.comparePacked(first, firstOffset, second, secondOffset, words);
+    }
+
+    private Path newFile() throws IOException {
+        Path file = Files.createTempFile(directory, "frontier", ".run");
+        files.add(file);
+        return file;
+    }
+
+    private void deleteFiles() throws IOException {
+        open.clear();
+        closed.clear();
+        for (Path file : files)
+            Files.deleteIfExists(file);
+        files.clear();
+    }
+
+    private class Bucket {
+        private long[] memory = new long[0];
+        private int count;
+        private final List<Run> runs = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return count == 0 && runs.isEmpty();
+        }
+
+        private void append(long[] record) {
+            if ((count + 1) * stride > memory.length)
+                memory = Arrays.copyOf(memory, Math.max(stride * 16, memory.length * 2));
+            System.arraycopy(record, 0, memory, count * stride, stride);
+            count++;
+        }
+
+        private void spill() throws IOException {
+            if (count == 0)
+                return;
+            sort();
+            RunWriter writer = new RunWriter();
+            for (int i = 0; i < count; i++)
+                writer.write(memory, i * stride);
+            runs.add(writer.finish());
+            memory = new long[0];
+            count = 0;
+        }
+
+        private List<Run> drain() throws IOException {
+            if (count > memoryLimit / 2) {
+                buffered -= count;
+                spill();
+            }
+            List<Run> result = new ArrayList<>(runs);
+            if (count > 0) {
+                sort();
+                result.add(new Run(null, new LongBuffer[]{LongBuffer.wrap(memory, 0, count * stride)}, count));
+            }
+            runs.clear();
+            memory = new long[0];
+            count = 0;
+            return result;
+        }
+
+        private void sort() {
+            for (int i = count / 2 - 1; i >= 0; i--)
+                sink(i, count);
+            for (int end = count - 1; end > 0; end--) {
+                exchange(0, end);
+                sink(0, end);
+            }
+        }
+
+        private void sink(int i, int n) {
+            while (2 * i + 1 < n) {
+                int child = 2 * i + 1;
+                if (child + 1 < n && compareBoards(memory, child * stride, memory, (child + 1) * stride) < 0)
+                    child++;
+                if (compareBoards(memory, i * stride, memory, child * stride) >= 0)
+                    return;
+                exchange(i, child);
+                i = child;
+            }
+        }
+
+        private void exchange(int i, int j) {
+            for (int k = 0; k < stride; k++) {
+                long temp = memory[i * stride + k];
+                memory[i * stride + k] = memory[j * stride + k];
+                memory[j * stride + k] = temp;
+            }
+        }
+    }
+
+    private class Run {
+        private final Path file;
+        private final LongBuffer[] chunks;
+        private final long count;
+
+        private Run(Path file, LongBuffer[] chunks, long count) {
+            this.file = file;
+            this.chunks = chunks;
+            this.count = count;
+        }
+
+        private void delete() throws IOException {
+            if (file == null) {
+                buffered -= count;
+                return;
+            }
+            Files.deleteIfExists(file);
+            files.remove(file);
+        }
+
+        private long word(long record, int word) {
+            long index = record * stride + word;
+            return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+        }
+
+        private long[] read(long record, long[] target) {
+            for (int i = 0; i < stride; i++)
+                target[i] = word(record, i);
+            return target;
+        }
+
+        private int compare(long record, long[] key) {
+            for (int i = words - 1; i >= 0; i--) {
+                int result = Long.compareUnsigned(word(record, i), key[i]);
+                if (result != 0)
+                    return result;
+            }
+            return 0;
+        }
+
+        private long find(long[] key) {
+            long lo = 0;
+            long hi = count - 1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                int result = compare(mid, key);
+                if (result < 0)
+                    lo = mid + 1;
+                else if (result > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+    }
+
+    private class RunWriter {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        private long count;
+
+        private RunWriter() throws IOException {
+            this.file = newFile();
+            this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void write(long[] source, int offset) throws IOException {
+            for (int i = 0; i < stride; i++) {
+                if (!buffer.hasRemaining())
+                    flush();
+                buffer.putLong(source[offset + i]);
+            }
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        private Run finish() throws IOException {
+            flush();
+            long length = count * stride;
+            long chunkLength = 1L << CHUNK_SHIFT;
+            LongBuffer[] chunks = new LongBuffer[(int) ((length + chunkLength - 1) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = i * chunkLength;
+                long end = Math.min(length, start + chunkLength);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start * 8, (end - start) * 8).asLongBuffer();
+            }
+            channel.close();
+            return new Run(file, chunks, count);
+        }
+    }
+
+    private class ClosedCursor {
+        private final Run run;
+        private long position;
+
+        private ClosedCursor(Run run) {
+            this.run = run;
+        }
+
+        private boolean seek(long[] key) {
+            if (position >= run.count || run.compare(position, key) >= 0)
+                return position < run.count && run.compare(position, key) == 0;
+            long step = 1;
+            while (position + step < run.count && run.compare(position + step, key) < 0) {
+                position += step;
+                step <<= 1;
+            }
+            long hi = Math.min(position + step, run.count);
+            long lo = position + 1;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (run.compare(mid, key) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            position = lo;
+            return position < run.count && run.compare(position, key) == 0;
+        }
+    }
+
+    private class Cursor implements Comparable<Cursor> {
+        private final Run run;
+        private final long[] record = new long[stride];
+        private long position;
+
+        private Cursor(Run run) {
+            this.run = run;
+            run.read(0, record);
+        }
+
+        private boolean advance() {
+            if (++position >= run.count)
+                return false;
+            run.read(position, record);
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor that) {
+            return compareBoards(record, 0, that.record, 0);
+        }
+    }
+}
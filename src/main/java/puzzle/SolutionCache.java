@@ -0,0 +1,270 @@
+package puzzle;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SolutionCache {
+
+    private static final int MAGIC = 0x50534332;
+
+    private static final byte UP = 0;
+
+    private static final byte DOWN = 1;
+
+    private static final byte LEFT = 2;
+
+    private static final byte RIGHT = 3;
+
+    private static final byte[] UNSOLVABLE = new byte[0];
+
+    private final int capacity;
+
+    private final Path file;
+
+    private final LinkedHashMap<Key, byte[]> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Object saveLock = new Object();
+
+    public SolutionCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.file = null;
+        this.entries = new LruMap();
+    }
+
+    public SolutionCache(int capacity, Path file) throws IOException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        checkForNull(file);
+        this.capacity = capacity;
+        this.file = file;
+        this.entries = new LruMap();
+        if (Files.exists(file))
+            load();
+    }
+
+    public Solver solve(Board initial) {
+        checkForNull(initial);
+        long[] plain = initial.pack();
+        long[] folded = initial.transpose().pack();
+        boolean isTransposed = Board.comparePacked(folded, 0, plain, 0, plain.length) < 0;
+        Key key = new Key(initial.dimension(), isTransposed ? folded : plain);
+        byte[] moves;
+        synchronized (entries) {
+            moves = entries.get(key);
+        }
+        if (moves != null) {
+            hits.incrementAndGet();
+            return replay(initial, moves, isTransposed);
+        }
+        misses.incrementAndGet();
+        Solver solver = new Solver(initial);
+        moves = solver.isSolvable() ? record(solver.solution(), initial.dimension(), isTransposed) : UNSOLVABLE;
+        synchronized (entries) {
+            entries.put(key, moves);
+        }
+        return solver;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public double hitRate() {
+        long hit = hits();
+        long total = hit + misses();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public void save() throws IOException {
+        if (file == null)
+            throw new IllegalStateException("cache is not backed by a file");
+        synchronized (saveLock) {
+            List<Map.Entry<Key, byte[]>> snapshot;
+            synchronized (entries) {
+                snapshot = new ArrayList<>(entries.entrySet());
+            }
+            long length = 8;
+            for (Map.Entry<Key, byte[]> entry : snapshot)
+                length += 12 + entry.getKey().words.length * 8L + entry.getValue().length;
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                    buffer.putInt(MAGIC);
+                    buffer.putInt(snapshot.size());
+                    for (Map.Entry<Key, byte[]> entry : snapshot) {
+                        Key key = entry.getKey();
+                        byte[] moves = entry.getValue();
+                        buffer.putInt(key.size);
+                        buffer.putInt(key.words.length);
+                        for (long word : key.words)
+                            buffer.putLong(word);
+                        buffer.putInt(moves == UNSOLVABLE ? -1 : moves.length);
+                        buffer.put(moves);
+                    }
+                    buffer.force();
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC)
+                throw new IOException("not a solution cache file: " + file);
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int size = buffer.getInt();
+                long[] words = new long[buffer.getInt()];
+                for (int j = 0; j < words.length; j++)
+                    words[j] = buffer.getLong();
+                int length = buffer.getInt();
+                byte[] moves = UNSOLVABLE;
+                if (length >= 0) {
+                    moves = new byte[length];
+                    buffer.get(moves);
+                }
+                entries.put(new Key(size, words), moves);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("corrupted solution cache file: " + file, e);
+        }
+    }
+
+    private byte[] record(Iterable<Board> solution, int size, boolean isTransposed) {
+        List<Board> steps = new ArrayList<>();
+        for (Board board : solution)
+            steps.add(board);
+        byte[] moves = new byte[steps.size() - 1];
+        int previous = steps.get(0).blankPosition();
+        for (int i = 1; i < steps.size(); i++) {
+            int current = steps.get(i).blankPosition();
+            moves[i - 1] = direction(current - previous, size);
+            if (isTransposed)
+                moves[i - 1] = transpose(moves[i - 1]);
+            previous = current;
+        }
+        return moves;
+    }
+
+    private Solver replay(Board initial, byte[] moves, boolean isTransposed) {
+        if (moves == UNSOLVABLE)
+            return new Solver(initial, null);
+        List<Board> path = new ArrayList<>(moves.length);
+        Board board = initial;
+        for (byte move : moves) {
+            byte direction = isTransposed ? transpose(move) : move;
+            switch (direction) {
+                case UP:
+                    board = board.moveBlank(-1, 0);
+                    break;
+                case DOWN:
+                    board = board.moveBlank(1, 0);
+                    break;
+                case LEFT:
+                    board = board.moveBlank(0, -1);
+                    break;
+                default:
+                    board = board.moveBlank(0, 1);
+            }
+            path.add(board);
+        }
+        return new Solver(initial, path);
+    }
+
+    private byte direction(int shift, int size) {
+        if (shift == -size) return UP;
+        if (shift == size) return DOWN;
+        if (shift == -1) return LEFT;
+        return RIGHT;
+    }
+
+    private byte transpose(byte direction) {
+        return (byte) (direction ^ 2);
+    }
+
+    private void checkForNull(Object p) {
+        if (p == null)
+            throw new NullPointerException("the passed argument equal to NULL");
+    }
+
+    private class LruMap extends LinkedHashMap<Key, byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private LruMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+            if (size() <= capacity)
+                return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    }
+
+    private static final class Key {
+        private final int size;
+        private final long[] words;
+        private final int hash;
+
+        private Key(int size, long[] words) {
+            this.size = size;
+            this.words = words;
+            this.hash = 31 * size + Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return size == key.size && Arrays.equals(words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
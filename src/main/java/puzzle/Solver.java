@@ -3,9 +3,12 @@ package puzzle;
 import edu.princeton.cs.algs4.MinPQ;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class Solver {
 
+    private static final double WEIGHT_STEP = 0.5;
+
     private final SearchNode initialNode;
 
     private final SearchNode initialNodeTwin;
@@ -20,15 +23,58 @@ public class Solver {
 
     private boolean solvable;
 
+    private double bound;
+
+    private long expanded;
+
+    private long deadline;
+
+    private long nodeLimit;
+
+    private boolean budgetExhausted;
+
     public Solver(Board initial) {
         if (initial == null)
             throw new NullPointerException("passed argument equal to NULL");
         this.initialNode = new SearchNode(initial, null);
         this.initialNodeTwin = new SearchNode(initialNode.board.twin(), null);
-        this.comp = new PuzzleComparator();
+        this.comp = new PuzzleComparator(1.0);
+        this.deadline = Long.MAX_VALUE;
+        this.nodeLimit = Long.MAX_VALUE;
         solve();
     }
 
+    public Solver(Board initial, double weight, long timeLimitMillis, long nodeLimit) {
+        if (initial == null)
+            throw new NullPointerException("passed argument equal to NULL");
+        if (!(weight >= 1.0))
+            throw new IllegalArgumentException("weight must be at least 1.0");
+        if (timeLimitMillis <= 0 || nodeLimit <= 0)
+            throw new IllegalArgumentException("budget must be positive");
+        this.initialNode = new SearchNode(initial, null);
+        this.initialNodeTwin = null;
+        this.comp = new PuzzleComparator(1.0);
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+        this.nodeLimit = nodeLimit;
+        solveAnytime(weight);
+    }
+
+    Solver(Board initial, List<Board> path) {
+        if (initial == null)
+            throw new NullPointerException("passed argument equal to NULL");
+        this.initialNode = new SearchNode(initial, null);
+        this.initialNodeTwin = null;
+        this.comp = new PuzzleComparator(1.0);
+        if (path == null) {
+            markAsUnsolvable();
+            return;
+        }
+        SearchNode node = initialNode;
+        for (Board board : path)
+            node = new SearchNode(board, node);
+        markAsSolvable(node, 1.0);
+    }
+
     private class SearchNode {
         private Board board;
         private SearchNode parent;
@@ -46,11 +92,17 @@ public class Solver {
     }
 
     private static class PuzzleComparator implements Comparator<SearchNode> {
+        private final double weight;
+
+        private PuzzleComparator(double weight) {
+            this.weight = weight;
+        }
+
         @Override
         public int compare(SearchNode o1, SearchNode o2) {
-            int thisPriority = o1.manhattan + o1.moves;
-            int thatPriority = o2.manhattan + o2.moves;
-            int result = thisPriority - thatPriority;
+            double thisPriority = weight * o1.manhattan + o1.moves;
+            double thatPriority = weight * o2.manhattan + o2.moves;
+            int result = Double.compare(thisPriority, thatPriority);
             if (result == 0)
                 result = o1.manhattan - o2.manhattan;
             if (result == 0)
@@ -67,8 +119,20 @@ public class Solver {
         return moves;
     }
 
+    public boolean isOptimal() {
+        return endNode != null && bound == 1.0;
+    }
+
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    public double suboptimalityBound() {
+        return bound;
+    }
+
     public Iterable<Board> solution() {
-        if (this.solution == null && solvable)
+        if (this.solution == null && endNode != null)
             this.solution = ParentIterator::new;
         return solution;
     }
@@ -120,7 +184,110 @@ public class Solver {
             markAsUnsolvable();
             return;
         }
-        markAsSolvable(node);
+        markAsSolvable(node, 1.0);
+    }
+
+    private void solveAnytime(double weight) {
+        if (!initialNode.board.hasSolution()) {
+            markAsUnsolvable();
+            return;
+        }
+        if (isEnd(initialNode)) {
+            markAsSolvable(initialNode, 1.0);
+            return;
+        }
+        this.solvable = true;
+        this.moves = -1;
+        this.bound = Double.POSITIVE_INFINITY;
+        Map<Board, SearchNode> best = new HashMap<>();
+        Set<Board> closed = new HashSet<>();
+        List<SearchNode> inconsistent = new ArrayList<>();
+        MinPQ<SearchNode> open = new MinPQ<>(new PuzzleComparator(weight));
+        best.put(initialNode.board, initialNode);
+        add(initialNode, open);
+        while (true) {
+            improvePath(weight, open, closed, inconsistent, best);
+            if (endNode == null)
+                return;
+            if (!budgetExhausted)
+                this.bound = Math.min(bound, weight);
+            tightenBound(open, inconsistent, best);
+            if (budgetExhausted || bound <= 1.0)
+                return;
+            weight = Math.max(1.0, weight - WEIGHT_STEP);
+            open = reorder(weight, open, inconsistent, best);
+            closed.clear();
+        }
+    }
+
+    private void improvePath(double weight, MinPQ<SearchNode> open, Set<Board> closed,
+                             List<SearchNode> inconsistent, Map<Board, SearchNode> best) {
+        while (!open.isEmpty()) {
+            SearchNode node = open.min();
+            if (best.get(node.board) != node) {
+                retrieveMin(open);
+                continue;
+            }
+            if (endNode != null && weight * node.manhattan + node.moves >= endNode.moves)
+                return;
+            if (isOutOfBudget()) {
+                this.budgetExhausted = true;
+                return;
+            }
+            retrieveMin(open);
+            closed.add(node.board);
+            expanded++;
+            for (Board board : node.board.neighbors()) {
+                if (checkForEqual(board, node)) continue;
+                SearchNode known = best.get(board);
+                if (known != null && known.moves <= node.moves + 1) continue;
+                SearchNode child = new SearchNode(board, node);
+                if (endNode != null && child.moves + child.manhattan >= endNode.moves) continue;
+                best.put(board, child);
+                if (isEnd(child)) {
+                    this.endNode = child;
+                    this.moves = child.moves;
+                } else if (closed.contains(board)) {
+                    inconsistent.add(child);
+                } else {
+                    add(child, open);
+                }
+            }
+        }
+    }
+
+    private void tightenBound(MinPQ<SearchNode> open, List<SearchNode> inconsistent, Map<Board, SearchNode> best) {
+        int lowerBound = moves;
+        for (SearchNode node : open) {
+            if (best.get(node.board) == node)
+                lowerBound = Math.min(lowerBound, node.moves + node.manhattan);
+        }
+        for (SearchNode node : inconsistent) {
+            if (best.get(node.board) == node)
+                lowerBound = Math.min(lowerBound, node.moves + node.manhattan);
+        }
+        if (lowerBound > 0)
+            this.bound = Math.min(bound, (double) moves / lowerBound);
+    }
+
+    private MinPQ<SearchNode> reorder(double weight, MinPQ<SearchNode> open, List<SearchNode> inconsistent,
+                                      Map<Board, SearchNode> best) {
+        MinPQ<SearchNode> result = new MinPQ<>(new PuzzleComparator(weight));
+        while (!open.isEmpty()) {
+            SearchNode node = retrieveMin(open);
+            if (best.get(node.board) == node)
+                add(node, result);
+        }
+        for (SearchNode node : inconsistent) {
+            if (best.get(node.board) == node)
+                add(node, result);
+        }
+        inconsistent.clear();
+        return result;
+    }
+
+    private boolean isOutOfBudget() {
+        return expanded >= nodeLimit || System.nanoTime() - deadline >= 0;
     }
 
     private void addAllNeighbor(SearchNode node, MinPQ<SearchNode> queue) {
@@ -136,16 +303,18 @@ public class Solver {
         return node.parent != null && board.equals(node.parent.board);
     }
 
-    private void markAsSolvable(SearchNode node) {
+    private void markAsSolvable(SearchNode node, double weight) {
         this.solvable = true;
         this.endNode = node;
         this.moves = endNode.moves;
+        this.bound = weight;
     }
 
     private void markAsUnsolvable() {
         this.solvable = false;
         this.endNode = null;
         this.moves = -1;
+        this.bound = Double.POSITIVE_INFINITY;
     }
 
     private boolean isEnd(SearchNode node) {